@@ -1,11 +1,14 @@
 package com.shepherdmoney.interviewproject;
 
+import com.shepherdmoney.interviewproject.shard.ShardingProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
 @EnableJpaRepositories
+@EnableConfigurationProperties(ShardingProperties.class)
 public class InterviewProjectApplication {
     public static void main(String[] args) {
         SpringApplication.run(InterviewProjectApplication.class, args);
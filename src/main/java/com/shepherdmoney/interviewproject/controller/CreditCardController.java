@@ -2,8 +2,8 @@ package com.shepherdmoney.interviewproject.controller;
 
 import com.shepherdmoney.interviewproject.model.CreditCard;
 import com.shepherdmoney.interviewproject.model.User;
-import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
 import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.shard.CreditCardShardRouter;
 import com.shepherdmoney.interviewproject.vo.request.AddCreditCardToUserPayload;
 import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
 import com.shepherdmoney.interviewproject.vo.response.CreditCardView;
@@ -27,8 +27,9 @@ public class CreditCardController {
     private static final Logger logger = LoggerFactory.getLogger(CreditCardController.class);
 
     // TODO: wire in CreditCard repository here (~1 line)
+    // Credit card repository calls go through the router, which picks the shard that owns the card number
     @Autowired
-    private CreditCardRepository creditCardRepository;
+    private CreditCardShardRouter creditCardShardRouter;
 
     @Autowired
     private UserRepository userRepository;
@@ -65,14 +66,23 @@ public class CreditCardController {
             // Log details just before saving the new credit card.
             logger.info("Saving credit card with Number: {}, Issuance Bank: {}", newCard.getNumber(), newCard.getIssuanceBank());
 
-            // Save the new credit card to the repository.
-            CreditCard savedCard = creditCardRepository.save(newCard);
+            // Save the new credit card to the shard that owns its number.
+            String savedNumber = creditCardShardRouter.onShard(newCard.getNumber(),
+                    repository -> repository.save(newCard).getNumber());
+
+            // In sharded mode there is no foreign key between the card and its owner. If the user was deleted
+            // while the card was being saved, remove the card again instead of leaving it orphaned.
+            if (creditCardShardRouter.isSharded() && !userRepository.existsById(payload.getUserId())) {
+                creditCardShardRouter.onShard(savedNumber, repository -> repository.deleteByOwnerId(payload.getUserId()));
+                logger.error("Failed to add credit card: User with ID {} was deleted concurrently", payload.getUserId());
+                return ResponseEntity.badRequest().body("User not found with ID " + payload.getUserId());
+            }
 
             // Log the successful creation of the credit card.
-            logger.info("Credit card created successfully with Number: {}", savedCard.getNumber());
+            logger.info("Credit card created successfully with Number: {}", savedNumber);
 
             // Return the number of the newly created credit card in the response, indicating success.
-            return ResponseEntity.ok(savedCard.getNumber());
+            return ResponseEntity.ok(savedNumber);
 
         } catch (Exception e) {
             // Log any exceptions that occur during the process.
@@ -88,20 +98,19 @@ public class CreditCardController {
         //       if the user has no credit card, return empty list, never return null
 
         try {
-            // Attempt to find the user by their ID.
-            User user = userRepository.findById(userId).orElse(null);
-
-            // Check if the user object is null
-            if (user == null) {
+            // Check that the user exists.
+            if (!userRepository.existsById(userId)) {
                 // Log an error indicating that no user was found
                 logger.error("No user found with ID {}", userId);
                 return ResponseEntity.badRequest().body(Collections.emptyList());// Returning empty list in case user not found
             }
 
-            // Convert the list of CreditCard entities associated with the user to CreditCardView
-            List<CreditCardView> cards = user.getCreditCards().stream()
+            // The user's cards can be spread over every shard, so query them all in parallel
+            // and convert the CreditCard entities to CreditCardView inside each shard's transaction
+            List<CreditCardView> cards = creditCardShardRouter.onAllShards(repository -> repository.findByOwnerId(userId)
+                    .stream()
                     .map(card -> new CreditCardView(card.getIssuanceBank(), card.getNumber()))
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toList()));
 
             // Log that the credit cards are successfully retrieved for the user.
             logger.info("Retrieving all credit cards for user ID {}", userId);
@@ -121,23 +130,16 @@ public class CreditCardController {
         // TODO: Given a credit card number, efficiently find whether there is a user associated with the credit card
         //       If so, return the user id in a 200 OK response. If no such user exists, return 400 Bad Request
         try {
-            // This method uses findAll() and streams to find the correct credit card
-            CreditCard creditCard = creditCardRepository.findAll()
-                    .stream()
-                    .filter(card -> card.getNumber().equals(creditCardNumber))
-                    .findFirst()
-                    .orElse(null);
+            // Read the owner's id from the shard that owns the card number
+            Optional<Integer> ownerId = creditCardShardRouter.onShard(creditCardNumber,
+                    repository -> repository.findOwnerIdsByNumber(creditCardNumber).stream().findFirst());
 
-            if (creditCard != null && creditCard.getOwner() != null) {
+            if (ownerId.isPresent()) {
                 // If credit card is found and it has an owner, return the owner's ID
-                return ResponseEntity.ok(creditCard.getOwner().getId());
-            } else if (creditCard != null) {
-                // Found the card, but no associated user
-                logger.info("Credit card found but no associated user: {}", creditCardNumber);
-                return ResponseEntity.badRequest().build();
+                return ResponseEntity.ok(ownerId.get());
             } else {
-                // No card could be found with the provided number
-                logger.info("No credit card found with number: {}", creditCardNumber);
+                // No card could be found with the provided number, or the card has no associated user
+                logger.info("No credit card with an associated user found with number: {}", creditCardNumber);
                 return ResponseEntity.badRequest().build();
             }
         } catch (Exception e) {
@@ -172,30 +174,34 @@ public class CreditCardController {
             // Iterate through each transaction in the payload
             for (UpdateBalancePayload update : payload) {
                 logger.info("Processing update for card number: {}", update.getCreditCardNumber());
-                // Fetch all credit cards from the repository
-                List<CreditCard> allCards = creditCardRepository.findAll();
-                logger.info("Fetched {} cards from the repository", allCards.size());
-
-                // Find the credit card associated with the current transaction
-                CreditCard creditCard = allCards.stream()
-                        .filter(card -> card.getNumber().equals(update.getCreditCardNumber()))
-                        .findFirst()
-                        .orElse(null);
+                // A payload without a card number cannot be routed to a shard and matches no card
+                if (update.getCreditCardNumber() == null || update.getCreditCardNumber().trim().isEmpty()) {
+                    logger.error("Credit card not found for number: {}", update.getCreditCardNumber());
+                    return ResponseEntity.badRequest().body("Credit card with number " + update.getCreditCardNumber() + " not found.");
+                }
+                // Find and update the credit card on the shard that owns its number
+                boolean updated = creditCardShardRouter.onShard(update.getCreditCardNumber(), repository -> {
+                    CreditCard creditCard = repository.findFirstByNumber(update.getCreditCardNumber()).orElse(null);
+                    if (creditCard == null) {
+                        return false;
+                    }
+
+                    // Update the balance history for the credit card with the transaction details
+                    logger.info("Found credit card, updating balance for date: {}", update.getBalanceDate());
+                    LocalDate balanceDate = update.getBalanceDate();
+                    double balanceAmount = update.getBalanceAmount();
+                    creditCard.updateBalanceHistory(balanceDate, balanceAmount);
+
+                    // Save the updated credit card to the repository
+                    logger.info("Updated local balance history, now saving credit card.");
+                    repository.save(creditCard);
+                    return true;
+                });
                 // If the credit card is not found, return a BadRequest response
-                if (creditCard == null) {
+                if (!updated) {
                     logger.error("Credit card not found for number: {}", update.getCreditCardNumber());
                     return ResponseEntity.badRequest().body("Credit card with number " + update.getCreditCardNumber() + " not found.");
                 }
-
-                // Update the balance history for the credit card with the transaction details
-                logger.info("Found credit card, updating balance for date: {}", update.getBalanceDate());
-                LocalDate balanceDate = update.getBalanceDate();
-                double balanceAmount = update.getBalanceAmount();
-                creditCard.updateBalanceHistory(balanceDate, balanceAmount);
-
-                // Save the updated credit card to the repository
-                logger.info("Updated local balance history, now saving credit card.");
-                creditCardRepository.save(creditCard);
                 logger.info("Saved credit card successfully.");
             }
             logger.info("All balances updated successfully.");
@@ -207,12 +213,11 @@ public class CreditCardController {
         }
     }
 
-    public CreditCard findCreditCardByNumber(String number) {
-        return creditCardRepository.findAll()
-                .stream()
-                .filter(card -> card.getNumber().equals(number))
-                .findFirst()
-                .orElse(null);
+    // Returns the balances of the card with the given number, or null if there is no such card
+    public List<Map<String, Object>> findBalancesByCardNumber(String number) {
+        return creditCardShardRouter.onShard(number, repository -> repository.findFirstByNumber(number)
+                .map(CreditCard::getBalances)
+                .orElse(null));
     }
 
     @GetMapping("/credit-card:balances")
@@ -227,17 +232,14 @@ public class CreditCardController {
 
             // Attempt to find the credit card associated with the provided card number
             logger.info("Attempting to retrieve balances for card number: {}", cardNumber);
-            CreditCard card = findCreditCardByNumber(cardNumber);
+            List<Map<String, Object>> balances = findBalancesByCardNumber(cardNumber);
 
             // If no credit card is found, return a NotFound response
-            if (card == null) {
+            if (balances == null) {
                 logger.warn("No credit card found with number: {}", cardNumber);
                 return ResponseEntity.notFound().build();
             }
 
-            // Get the balances associated with the credit card
-            List<Map<String, Object>> balances = card.getBalances();
-
             // If no balances are available, return a response indicating no balances are available
             if (balances.isEmpty()) {
                 logger.info("No balances available for card number: {}", cardNumber);
@@ -2,6 +2,7 @@ package com.shepherdmoney.interviewproject.controller;
 
 import com.shepherdmoney.interviewproject.model.User;
 import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.shard.CreditCardShardRouter;
 import com.shepherdmoney.interviewproject.vo.request.CreateUserPayload;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
@@ -9,14 +10,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 public class UserController {
 
     // TODO: wire in the user repository (~ 1 line)
     @Autowired
     private UserRepository userRepository;  // Dependency injection of the UserRepository
+
+    @Autowired
+    private CreditCardShardRouter creditCardShardRouter;
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
     @PutMapping("/user")
@@ -58,6 +66,17 @@ public class UserController {
             return userRepository.findById(userId)
                     .map(user -> {
                         userRepository.delete(user); // Deletes the user if found.
+                        userRepository.flush(); // Surface delete failures before anything is scheduled on the shards.
+                        if (creditCardShardRouter.isSharded()) {
+                            // Cards live on the shards, so the cascade from the user does not reach them.
+                            // They are removed only once the user delete has committed.
+                            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                                @Override
+                                public void afterCommit() {
+                                    deleteCardsFromShards(userId);
+                                }
+                            });
+                        }
                         logger.info("User deleted successfully with ID: {}", userId); // Log success.
                         // Return a 200 OK response indicating successful deletion, including the user ID in the message.
                         return ResponseEntity.ok("User ID " + userId + " deleted successfully.");
@@ -73,4 +92,18 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error occurred while deleting user.");
         }
     }
+
+    // Deleting a user in sharded mode is not atomic: the user is committed in the primary database first and the
+    // cards are deleted shard by shard afterwards. Cards added concurrently are removed again by the owner re-check
+    // in CreditCardController.addCreditCardToUser. A card is still left behind pointing at the deleted user id if
+    // a shard delete here fails, or if adding a card fails between saving it and that re-check.
+    private void deleteCardsFromShards(int userId) {
+        try {
+            long deletedCards = creditCardShardRouter.onAllShards(repository -> List.of(repository.deleteByOwnerId(userId)))
+                    .stream().mapToLong(Long::longValue).sum();
+            logger.info("Deleted {} credit cards of user ID {} from the shards", deletedCards, userId);
+        } catch (Exception e) {
+            logger.error("User ID {} was deleted but its credit cards could not be removed from every shard", userId, e);
+        }
+    }
 }
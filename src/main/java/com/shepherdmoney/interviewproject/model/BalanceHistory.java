@@ -24,8 +24,10 @@ public class BalanceHistory {
 
     private double balance;
 
+    // Balance history is always stored next to its card, so the foreign key is kept even in the shard schemas,
+    // which leave out foreign keys by default
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "credit_card_id")
+    @JoinColumn(name = "credit_card_id", foreignKey = @ForeignKey(ConstraintMode.CONSTRAINT))
     private CreditCard creditCard;
 
 }
@@ -2,12 +2,28 @@ package com.shepherdmoney.interviewproject.repository;
 
 import com.shepherdmoney.interviewproject.model.CreditCard;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Crud repository to store credit cards
  */
 @Repository("CreditCardRepo")
 public interface CreditCardRepository extends JpaRepository<CreditCard, Integer> {
 
+    // Looks up a card by its number instead of scanning every card in memory
+    Optional<CreditCard> findFirstByNumber(String number);
+
+    // Reads the owner's id straight from the foreign key column, so the owner row does not have to live
+    // in the same database as the card (see CreditCardShardRouter)
+    @Query("select c.owner.id from CreditCard c where c.number = :number and c.owner is not null")
+    List<Integer> findOwnerIdsByNumber(@Param("number") String number);
+
+    List<CreditCard> findByOwnerId(int ownerId);
+
+    long deleteByOwnerId(int ownerId);
 }
@@ -0,0 +1,60 @@
+package com.shepherdmoney.interviewproject.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps shard keys (credit card numbers) onto a fixed number of shards. Each shard owns several points on the
+ * ring, and a key belongs to the first shard point at or after the key's hash, wrapping around at the end.
+ */
+public class ConsistentHashRing {
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    private final int shardCount;
+
+    public ConsistentHashRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1, got " + shardCount);
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual node count must be at least 1, got " + virtualNodes);
+        }
+        this.shardCount = shardCount;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(hash("shard-" + shard + "-node-" + node), shard);
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    // Returns the index of the shard that owns the given key
+    public int shardFor(String key) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        Map.Entry<Long, Integer> owner = ring.ceilingEntry(hash(key));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    // First 8 bytes of the MD5 digest, so the placement is stable across JVMs and restarts
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (digest[i] & 0xff);
+            }
+            return value;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
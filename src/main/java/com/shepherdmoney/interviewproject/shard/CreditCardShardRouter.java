@@ -0,0 +1,209 @@
+package com.shepherdmoney.interviewproject.shard;
+
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import jakarta.persistence.ConstraintMode;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Routes credit card repository operations to the shard that owns the card number.
+ * <p>
+ * With {@code sharding.enabled=false} there is a single shard backed by the primary datasource, so callers do not
+ * need to know which mode the service runs in. With sharding enabled, each shard gets its own datasource,
+ * entity manager factory and {@link CreditCardRepository}, card numbers are placed with a {@link ConsistentHashRing},
+ * and user-level reads are sent to every shard in parallel and merged. Users stay in the primary datasource.
+ */
+@Component
+public class CreditCardShardRouter implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(CreditCardShardRouter.class);
+
+    private final boolean sharded;
+
+    private final ConsistentHashRing ring;
+
+    private final List<Shard> shards = new ArrayList<>();
+
+    // Resources owned by the router in sharded mode, released on shutdown
+    private final List<LocalContainerEntityManagerFactoryBean> shardEntityManagerFactories = new ArrayList<>();
+    private final List<DataSource> shardDataSources = new ArrayList<>();
+
+    private final ExecutorService scatterExecutor;
+
+    public CreditCardShardRouter(ShardingProperties properties,
+                                 CreditCardRepository creditCardRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 EntityManagerFactoryBuilder entityManagerFactoryBuilder,
+                                 JpaProperties jpaProperties,
+                                 HibernateProperties hibernateProperties) {
+        this.sharded = properties.isEnabled();
+        if (!sharded) {
+            // Single shard on the primary datasource, scatter-gather runs on the calling thread
+            this.ring = new ConsistentHashRing(1, 1);
+            this.shards.add(new Shard(0, creditCardRepository, new TransactionTemplate(transactionManager)));
+            this.scatterExecutor = null;
+            return;
+        }
+
+        this.ring = new ConsistentHashRing(properties.getShardCount(), properties.getVirtualNodes());
+        List<String> urls = shardUrls(properties.getUrlTemplate(), properties.getShardCount());
+        Map<String, Object> vendorProperties = new HashMap<>(hibernateProperties.determineHibernateProperties(
+                jpaProperties.getProperties(), new HibernateSettings()));
+        // A card's owner lives in the primary database, so shard schemas cannot have a foreign key to it.
+        // Foreign keys are left out by default; BalanceHistory explicitly keeps its key to the card, which is on
+        // the same shard. The primary schema keeps all its constraints.
+        vendorProperties.put(AvailableSettings.HBM2DDL_DEFAULT_CONSTRAINT_MODE, ConstraintMode.NO_CONSTRAINT.name());
+        // Spring does not call destroy() when the constructor throws, so release the shards opened so far
+        try {
+            for (int index = 0; index < properties.getShardCount(); index++) {
+                String url = urls.get(index);
+                logger.info("Opening credit card shard {} at {}", index, url);
+
+                DataSource dataSource = DataSourceBuilder.create()
+                        .url(url)
+                        .username(properties.getUsername())
+                        .password(properties.getPassword())
+                        .build();
+                shardDataSources.add(dataSource);
+
+                LocalContainerEntityManagerFactoryBean factoryBean = entityManagerFactoryBuilder
+                        .dataSource(dataSource)
+                        .packages(CreditCard.class)
+                        .persistenceUnit("shard-" + index)
+                        .properties(vendorProperties)
+                        .build();
+                factoryBean.afterPropertiesSet();
+                shardEntityManagerFactories.add(factoryBean);
+
+                EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+                CreditCardRepository repository = new JpaRepositoryFactory(
+                        SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory))
+                        .getRepository(CreditCardRepository.class);
+                TransactionTemplate transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+                shards.add(new Shard(index, repository, transactionTemplate));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to open credit card shard {}, closing the shards already opened", shards.size(), e);
+            closeShards();
+            throw e;
+        }
+        this.scatterExecutor = Executors.newFixedThreadPool(properties.getScatterThreads());
+        logger.info("Credit card sharding enabled with {} shards", properties.getShardCount());
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public int shardFor(String cardNumber) {
+        return ring.shardFor(cardNumber);
+    }
+
+    // Runs the work in a transaction on the shard that owns the card number.
+    // Entities must not escape the callback, map them to views inside it.
+    public <T> T onShard(String cardNumber, Function<CreditCardRepository, T> work) {
+        return execute(shards.get(ring.shardFor(cardNumber)), work);
+    }
+
+    // Runs the work on every shard in parallel and concatenates the results in shard order.
+    // The last shard is queried on the calling thread, so a single shard never needs the scatter pool.
+    public <T> List<T> onAllShards(Function<CreditCardRepository, List<T>> work) {
+        Shard last = shards.get(shards.size() - 1);
+        if (scatterExecutor == null || shards.size() == 1) {
+            return execute(last, work);
+        }
+        List<CompletableFuture<List<T>>> futures = shards.subList(0, shards.size() - 1).stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> execute(shard, work), scatterExecutor))
+                .toList();
+        List<T> lastResults = execute(last, work);
+        List<T> results = new ArrayList<>();
+        for (CompletableFuture<List<T>> future : futures) {
+            results.addAll(future.join());
+        }
+        results.addAll(lastResults);
+        return results;
+    }
+
+    // Every shard must get its own database, otherwise each shard's schema creation would wipe the same tables
+    // and scatter-gather reads would return every card once per shard
+    static List<String> shardUrls(String urlTemplate, int shardCount) {
+        if (urlTemplate == null || !urlTemplate.contains("%d")) {
+            throw new IllegalArgumentException("sharding.url-template must contain %d for the shard index, got " + urlTemplate);
+        }
+        List<String> urls = new ArrayList<>();
+        for (int index = 0; index < shardCount; index++) {
+            urls.add(String.format(urlTemplate, index));
+        }
+        if (new HashSet<>(urls).size() != urls.size()) {
+            throw new IllegalArgumentException("sharding.url-template must give every shard a different url, got " + urls);
+        }
+        return urls;
+    }
+
+    private <T> T execute(Shard shard, Function<CreditCardRepository, T> work) {
+        return shard.transactionTemplate().execute(status -> work.apply(shard.repository()));
+    }
+
+    @Override
+    public void destroy() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdown();
+        }
+        closeShards();
+    }
+
+    // Closes every shard entity manager factory and connection pool, continuing past failures
+    private void closeShards() {
+        for (LocalContainerEntityManagerFactoryBean factoryBean : shardEntityManagerFactories) {
+            try {
+                factoryBean.destroy();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to close entity manager factory of a credit card shard", e);
+            }
+        }
+        for (DataSource dataSource : shardDataSources) {
+            if (dataSource instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close datasource of a credit card shard", e);
+                }
+            }
+        }
+    }
+
+    private record Shard(int index, CreditCardRepository repository, TransactionTemplate transactionTemplate) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.shepherdmoney.interviewproject.shard;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the partitioned deployment mode, bound from the {@code sharding.*} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+
+    // When false, every credit card lives in the primary datasource (spring.datasource.*)
+    private boolean enabled = false;
+
+    private int shardCount = 1;
+
+    // JDBC url of each shard, %d is replaced with the shard index
+    private String urlTemplate = "jdbc:h2:file:~/database-shard-%d";
+
+    private String username = "sa";
+
+    private String password = "password";
+
+    // Number of points each shard owns on the consistent hash ring
+    private int virtualNodes = 128;
+
+    // Threads shared by all requests for querying the other shards in parallel during scatter-gather reads,
+    // sized like a shard connection pool rather than the shard count so concurrent requests do not queue
+    private int scatterThreads = 32;
+}
@@ -0,0 +1,308 @@
+package com.shepherdmoney.interviewproject.load;
+
+import com.shepherdmoney.interviewproject.model.BalanceHistory;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.shard.CreditCardShardRouter;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a mixed open-model workload against every REST endpoint of an in-process server backed by an in-memory
+ * H2 database, records per-endpoint latencies in HdrHistograms and fails when an endpoint misses its p99 budget
+ * or returns an error. Run with {@code ./gradlew loadTest}; every setting can be overridden with a
+ * {@code -Dload.*} system property:
+ * <ul>
+ *   <li>{@code load.users}, {@code load.cards-per-user}, {@code load.history-days}: seeded dataset</li>
+ *   <li>{@code load.rate}: mean request arrival rate per second, {@code load.concurrency}: client threads,
+ *       {@code load.seed}: seed of the request mix</li>
+ *   <li>{@code load.warmup-seconds}, {@code load.duration-seconds}: length of the discarded and measured phases</li>
+ *   <li>{@code load.weight.<endpoint>}: share of the workload, {@code load.p99-budget-ms.<endpoint>}: p99 budget,
+ *       falling back to {@code load.p99-budget-ms.default}</li>
+ *   <li>{@code load.sharded}, {@code load.shard-count}: run against {@code load.shard-count} in-memory card shards
+ *       instead of the single primary database</li>
+ *   <li>{@code load.report-dir}: if set, the full percentile distribution of each endpoint is written there</li>
+ * </ul>
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+        "logging.level.com.shepherdmoney.interviewproject.controller=WARN"
+})
+class RestEndpointLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(RestEndpointLoadTest.class);
+
+    private enum Endpoint {
+        CREATE_USER("create-user", 5),
+        ADD_CARD("add-card", 10),
+        ALL_CARDS("all-cards", 25),
+        CARD_USER_ID("card-user-id", 25),
+        UPDATE_BALANCE("update-balance", 15),
+        BALANCES("balances", 20);
+
+        private final String key;
+        private final int defaultWeight;
+
+        Endpoint(String key, int defaultWeight) {
+            this.key = key;
+            this.defaultWeight = defaultWeight;
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardShardRouter creditCardShardRouter;
+
+    private final List<Integer> userIds = new ArrayList<>();
+    private final List<String> cardNumbers = new ArrayList<>();
+    private final AtomicInteger requestCounter = new AtomicInteger();
+
+    // Maps the load.* switches onto the sharding.* settings before the context starts
+    @DynamicPropertySource
+    static void shardingProperties(DynamicPropertyRegistry registry) {
+        registry.add("sharding.enabled", () -> System.getProperty("load.sharded", "false"));
+        registry.add("sharding.shard-count", () -> System.getProperty("load.shard-count", "4"));
+        registry.add("sharding.url-template", () -> "jdbc:h2:mem:load-shard-%d;DB_CLOSE_DELAY=-1");
+    }
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @Test
+    void endpointsMeetLatencyBudgets() throws Exception {
+        int historyDays = setting("history-days", 30);
+        seed(setting("users", 100), setting("cards-per-user", 3), historyDays);
+        logger.info("Seeded {} users and {} cards with {} days of balance history on {} shard(s), sharding {}",
+                userIds.size(), cardNumbers.size(), historyDays, creditCardShardRouter.getShardCount(),
+                creditCardShardRouter.isSharded() ? "enabled" : "disabled");
+
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            weights.put(endpoint, setting("weight." + endpoint.key, endpoint.defaultWeight));
+        }
+        double rate = environment.getProperty("load.rate", Double.class, 200.0);
+        ExecutorService workers = Executors.newFixedThreadPool(setting("concurrency", 64));
+        try {
+            // Different seeds, so the measured phase does not replay the rows the warmup just cached
+            int seed = setting("seed", 42);
+            drive(workers, weights, rate, historyDays, setting("warmup-seconds", 5), seed, new Results());
+            Results results = new Results();
+            drive(workers, weights, rate, historyDays, setting("duration-seconds", 20), seed + 1, results);
+            assertBudgets(results);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Users go through the repository and cards through the shard router, so the seed works in either mode
+    private void seed(int users, int cardsPerUser, int historyDays) {
+        LocalDate today = LocalDate.now();
+        for (int u = 0; u < users; u++) {
+            User user = new User();
+            user.setName("Load User " + u);
+            user.setEmail("load.user" + u + "@example.com");
+            User savedUser = userRepository.save(user);
+            userIds.add(savedUser.getId());
+
+            for (int c = 0; c < cardsPerUser; c++) {
+                String number = "LOAD-" + savedUser.getId() + "-" + c;
+                creditCardShardRouter.onShard(number, repository -> {
+                    CreditCard card = new CreditCard();
+                    card.setNumber(number);
+                    card.setIssuanceBank("Load Bank");
+                    card.setOwner(savedUser);
+                    // Oldest entry first, ending today, as CreditCard keeps its history
+                    for (int day = historyDays - 1; day >= 0; day--) {
+                        BalanceHistory balance = new BalanceHistory();
+                        balance.setDate(today.minusDays(day));
+                        balance.setBalance(1000.0 - day);
+                        balance.setCreditCard(card);
+                        card.getBalanceHistory().add(balance);
+                    }
+                    return repository.save(card);
+                });
+                cardNumbers.add(number);
+            }
+        }
+    }
+
+    // Open model: arrivals follow a Poisson process at the given rate whether or not earlier requests have
+    // finished, and latency is measured from the scheduled arrival time so queueing delay is not hidden
+    private void drive(ExecutorService workers, Map<Endpoint, Integer> weights, double rate, int historyDays,
+                       int seconds, int seed, Results results) throws Exception {
+        Random random = new Random(seed);
+        int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        double meanIntervalNanos = 1_000_000_000.0 / rate;
+        long start = System.nanoTime();
+        long end = start + Duration.ofSeconds(seconds).toNanos();
+
+        List<Future<?>> pending = new ArrayList<>();
+        for (long arrival = start; arrival < end; arrival += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos)) {
+            long wait = arrival - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = pick(weights, totalWeight, random);
+            HttpRequest request = buildRequest(endpoint, random, historyDays);
+            long scheduledAt = arrival;
+            pending.add(workers.submit(() -> results.record(endpoint, send(request), System.nanoTime() - scheduledAt)));
+        }
+        for (Future<?> future : pending) {
+            future.get();
+        }
+    }
+
+    private Endpoint pick(Map<Endpoint, Integer> weights, int totalWeight, Random random) {
+        int roll = random.nextInt(totalWeight);
+        for (Map.Entry<Endpoint, Integer> weight : weights.entrySet()) {
+            roll -= weight.getValue();
+            if (roll < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("Weights do not add up to " + totalWeight);
+    }
+
+    private HttpRequest buildRequest(Endpoint endpoint, Random random, int historyDays) {
+        int id = requestCounter.incrementAndGet();
+        int userId = userIds.get(random.nextInt(userIds.size()));
+        String cardNumber = cardNumbers.get(random.nextInt(cardNumbers.size()));
+        return switch (endpoint) {
+            case CREATE_USER -> json("/user", "PUT",
+                    "{\"name\":\"New User " + id + "\",\"email\":\"new.user" + id + "@example.com\"}");
+            case ADD_CARD -> json("/credit-card", "POST",
+                    "{\"userId\":" + userId + ",\"cardIssuanceBank\":\"Load Bank\",\"cardNumber\":\"NEW-" + id + "\"}");
+            case ALL_CARDS -> get("/credit-card:all?userId=" + userId);
+            case CARD_USER_ID -> get("/credit-card:user-id?creditCardNumber=" + cardNumber);
+            case UPDATE_BALANCE -> json("/credit-card:update-balance", "POST",
+                    "[{\"creditCardNumber\":\"" + cardNumber + "\",\"balanceDate\":\""
+                            + LocalDate.now().minusDays(random.nextInt(historyDays)) + "\",\"balanceAmount\":"
+                            + random.nextInt(5000) + "}]");
+            case BALANCES -> get("/credit-card:balances?cardNumber=" + cardNumber);
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest json(String path, String method, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    // Returns the status code, or -1 if the request failed without a response
+    private int send(HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            logger.error("Request to {} failed", request.uri(), e);
+            return -1;
+        }
+    }
+
+    private void assertBudgets(Results results) throws Exception {
+        String reportDir = environment.getProperty("load.report-dir");
+        long defaultBudget = environment.getProperty("load.p99-budget-ms.default", Long.class, 200L);
+        List<String> failures = new ArrayList<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = results.latencies.get(endpoint);
+            long errors = results.errors.get(endpoint).get();
+            double p99 = histogram.getValueAtPercentile(99.0) / 1000.0;
+            long budget = environment.getProperty("load.p99-budget-ms." + endpoint.key, Long.class, defaultBudget);
+            logger.info("{}: {} requests, {} errors, p50 {} ms, p90 {} ms, p99 {} ms (budget {} ms), max {} ms",
+                    endpoint.key, histogram.getTotalCount(), errors,
+                    histogram.getValueAtPercentile(50.0) / 1000.0, histogram.getValueAtPercentile(90.0) / 1000.0,
+                    p99, budget, histogram.getMaxValue() / 1000.0);
+
+            if (reportDir != null) {
+                File report = new File(reportDir, endpoint.key + ".hgrm");
+                report.getParentFile().mkdirs();
+                try (PrintStream out = new PrintStream(report)) {
+                    // Recorded in microseconds, reported in milliseconds
+                    histogram.outputPercentileDistribution(out, 1000.0);
+                }
+            }
+            if (p99 > budget) {
+                failures.add(endpoint.key + " p99 " + p99 + " ms exceeds budget of " + budget + " ms");
+            }
+            if (errors > 0) {
+                failures.add(endpoint.key + " returned " + errors + " errors");
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    private int setting(String name, int defaultValue) {
+        return environment.getProperty("load." + name, Integer.class, defaultValue);
+    }
+
+    // Latencies are recorded in microseconds; anything other than a 2xx response counts as an error
+    private static class Results {
+        private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+        private final Map<Endpoint, AtomicLong> errors = new EnumMap<>(Endpoint.class);
+
+        Results() {
+            for (Endpoint endpoint : Endpoint.values()) {
+                latencies.put(endpoint, new ConcurrentHistogram(3));
+                errors.put(endpoint, new AtomicLong());
+            }
+        }
+
+        void record(Endpoint endpoint, int status, long latencyNanos) {
+            latencies.get(endpoint).recordValue(latencyNanos / 1000);
+            if (status < 200 || status >= 300) {
+                errors.get(endpoint).incrementAndGet();
+            }
+        }
+    }
+}
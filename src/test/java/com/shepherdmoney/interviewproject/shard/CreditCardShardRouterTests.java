@@ -0,0 +1,126 @@
+package com.shepherdmoney.interviewproject.shard;
+
+import com.shepherdmoney.interviewproject.controller.CreditCardController;
+import com.shepherdmoney.interviewproject.controller.UserController;
+import com.shepherdmoney.interviewproject.vo.request.AddCreditCardToUserPayload;
+import com.shepherdmoney.interviewproject.vo.request.CreateUserPayload;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import com.shepherdmoney.interviewproject.vo.response.CreditCardView;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sharded-primary;DB_CLOSE_DELAY=-1",
+        "sharding.enabled=true",
+        "sharding.shard-count=4",
+        "sharding.url-template=jdbc:h2:mem:sharded-shard-%d;DB_CLOSE_DELAY=-1"
+})
+class CreditCardShardRouterTests {
+
+    @Autowired
+    private CreditCardShardRouter router;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private CreditCardController creditCardController;
+
+    @Test
+    void ringPlacementIsPinned() {
+        // Expected shards are fixed so a change to the hash or ring layout, which would move stored cards, is caught
+        ConsistentHashRing ring = new ConsistentHashRing(4, 128);
+        assertEquals(3, ring.shardFor("4111-1111-1111-1111"));
+        assertEquals(0, ring.shardFor("5500-0000-0000-0004"));
+        assertEquals(1, ring.shardFor("3400-000000-00009"));
+        assertEquals(2, ring.shardFor("LOAD-1-0"));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0, 128));
+    }
+
+    @Test
+    void addingAShardOnlyMovesKeysToTheNewShard() {
+        ConsistentHashRing fourShards = new ConsistentHashRing(4, 128);
+        ConsistentHashRing fiveShards = new ConsistentHashRing(5, 128);
+        int keys = 10_000;
+        int moved = 0;
+        for (int i = 0; i < keys; i++) {
+            String number = "4111-" + i;
+            int before = fourShards.shardFor(number);
+            int after = fiveShards.shardFor(number);
+            if (before != after) {
+                moved++;
+                assertEquals(4, after, "Card " + number + " moved between existing shards");
+            }
+        }
+        // Ideally 1/5 of the keys move to the new shard
+        double movedShare = (double) moved / keys;
+        assertTrue(movedShare > 0.15 && movedShare < 0.25, "Moved share was " + movedShare);
+    }
+
+    @Test
+    void urlTemplateMustGiveEveryShardItsOwnDatabase() {
+        assertEquals(List.of("jdbc:h2:mem:s-0", "jdbc:h2:mem:s-1"), CreditCardShardRouter.shardUrls("jdbc:h2:mem:s-%d", 2));
+        assertThrows(IllegalArgumentException.class, () -> CreditCardShardRouter.shardUrls("jdbc:h2:mem:shared", 2));
+        assertThrows(IllegalArgumentException.class, () -> CreditCardShardRouter.shardUrls("jdbc:h2:mem:s-%%d", 2));
+    }
+
+    @Test
+    void cardsAreRoutedAndGatheredAcrossShards() {
+        int userId = createUser("Sharded User");
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            String number = "5500-" + userId + "-" + i;
+            assertEquals(HttpStatus.OK, addCard(userId, number).getStatusCode());
+            usedShards.add(router.shardFor(number));
+        }
+        assertTrue(usedShards.size() > 1, "40 cards should not all hash onto one shard");
+
+        List<CreditCardView> cards = creditCardController.getAllCardOfUser(userId).getBody();
+        assertNotNull(cards);
+        assertEquals(40, cards.size());
+
+        String number = "5500-" + userId + "-7";
+        assertEquals(userId, creditCardController.getUserIdForCreditCard(number).getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, creditCardController.getUserIdForCreditCard("missing").getStatusCode());
+
+        UpdateBalancePayload update = new UpdateBalancePayload();
+        update.setCreditCardNumber(number);
+        update.setBalanceDate(LocalDate.now());
+        update.setBalanceAmount(120.0);
+        assertEquals(HttpStatus.OK, creditCardController.updateCreditCardBalance(new UpdateBalancePayload[]{update}).getStatusCode());
+        assertEquals(1, ((List<?>) creditCardController.getCreditCardBalances(number).getBody()).size());
+
+        UpdateBalancePayload missingNumber = new UpdateBalancePayload();
+        missingNumber.setBalanceDate(LocalDate.now());
+        assertEquals(HttpStatus.BAD_REQUEST, creditCardController.updateCreditCardBalance(new UpdateBalancePayload[]{missingNumber}).getStatusCode());
+
+        assertEquals(HttpStatus.OK, userController.deleteUser(userId).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, creditCardController.getUserIdForCreditCard(number).getStatusCode());
+        assertTrue(router.onAllShards(repository -> repository.findByOwnerId(userId)).isEmpty());
+    }
+
+    private int createUser(String name) {
+        CreateUserPayload payload = new CreateUserPayload();
+        payload.setName(name);
+        payload.setEmail(name.replace(' ', '.') + "@example.com");
+        return userController.createUser(payload).getBody();
+    }
+
+    private ResponseEntity<?> addCard(int userId, String number) {
+        AddCreditCardToUserPayload payload = new AddCreditCardToUserPayload();
+        payload.setUserId(userId);
+        payload.setCardIssuanceBank("Chase");
+        payload.setCardNumber(number);
+        return creditCardController.addCreditCardToUser(payload);
+    }
+}
@@ -0,0 +1,135 @@
+package com.shepherdmoney.interviewproject.shard;
+
+import com.shepherdmoney.interviewproject.InterviewProjectApplication;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures credit card throughput with 1, 2 and 4 in-process H2 shards. Each run starts its own application
+ * context and drives the same mixed workload from a fixed number of client threads: create card, owner lookup
+ * and balance update are routed to one shard, while reading all cards of the owner is a scatter-gather over every
+ * shard, so the numbers show both sides of the trade-off. Run with {@code ./gradlew benchmark}.
+ * <p>
+ * Throughput is only reported, not asserted: in-process H2 shards share one machine, so no scaling factor can be
+ * promised. The run fails only if a written card is missing from its owner's scatter-gather read.
+ */
+@Tag("benchmark")
+class ShardScalingBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ShardScalingBenchmark.class);
+
+    private static final int CLIENT_THREADS = 8;
+    private static final int OWNERS = 100;
+    private static final int WARMUP_OPERATIONS_PER_THREAD = 200;
+    private static final int OPERATIONS_PER_THREAD = 1000;
+
+    @Test
+    void measureThroughputWith1To4Shards() throws Exception {
+        Map<Integer, Double> throughput = new LinkedHashMap<>();
+        for (int shardCount : new int[]{1, 2, 4}) {
+            throughput.put(shardCount, run(shardCount));
+        }
+        throughput.forEach((shardCount, opsPerSecond) ->
+                logger.info("{} shard(s): {} ops/s ({}x of 1 shard)", shardCount, String.format("%.0f", opsPerSecond),
+                        String.format("%.2f", opsPerSecond / throughput.get(1))));
+    }
+
+    private double run(int shardCount) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(InterviewProjectApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-primary-" + shardCount + ";DB_CLOSE_DELAY=-1",
+                        "sharding.enabled=true",
+                        "sharding.shard-count=" + shardCount,
+                        "sharding.url-template=jdbc:h2:mem:bench-" + shardCount + "-shard-%d;DB_CLOSE_DELAY=-1",
+                        "logging.level.com.shepherdmoney=WARN")
+                .run()) {
+            CreditCardShardRouter router = context.getBean(CreditCardShardRouter.class);
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            List<User> owners = new ArrayList<>();
+            for (int i = 0; i < OWNERS; i++) {
+                User owner = new User();
+                owner.setName("Benchmark User " + i);
+                owner.setEmail("benchmark" + i + "@example.com");
+                owners.add(userRepository.save(owner));
+            }
+
+            drive(router, owners, "warmup", WARMUP_OPERATIONS_PER_THREAD);
+            long start = System.nanoTime();
+            int operations = drive(router, owners, "measured", OPERATIONS_PER_THREAD);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            // Every card written in either phase must be found again by the scatter-gather read of its owner
+            long cards = 0;
+            for (User owner : owners) {
+                cards += router.onAllShards(repository -> repository.findByOwnerId(owner.getId())).size();
+            }
+            assertEquals((long) CLIENT_THREADS * (WARMUP_OPERATIONS_PER_THREAD + OPERATIONS_PER_THREAD), cards);
+            return operations / seconds;
+        }
+    }
+
+    // Each iteration creates a card, looks its owner up and records a balance, all routed by card number,
+    // then reads all cards of the owner from every shard and checks the new card is among them
+    private int drive(CreditCardShardRouter router, List<User> owners, String phase, int operationsPerThread) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENT_THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int thread = 0; thread < CLIENT_THREADS; thread++) {
+                String prefix = phase + "-" + thread + "-";
+                results.add(clients.submit(() -> {
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        String number = prefix + i;
+                        double balance = i;
+                        User owner = owners.get(Math.floorMod(number.hashCode(), owners.size()));
+                        router.onShard(number, repository -> {
+                            CreditCard card = new CreditCard();
+                            card.setNumber(number);
+                            card.setIssuanceBank("Benchmark Bank");
+                            card.setOwner(owner);
+                            return repository.save(card);
+                        });
+                        router.onShard(number, repository -> repository.findOwnerIdsByNumber(number));
+                        router.onShard(number, repository -> repository.findFirstByNumber(number)
+                                .map(card -> {
+                                    card.updateBalanceHistory(LocalDate.now(), balance);
+                                    return repository.save(card);
+                                }));
+                        List<String> ownerCards = router.onAllShards(repository -> repository.findByOwnerId(owner.getId())
+                                .stream()
+                                .map(CreditCard::getNumber)
+                                .toList());
+                        assertTrue(ownerCards.contains(number), "Card " + number + " missing from its owner's cards");
+                    }
+                    return operationsPerThread * 4;
+                }));
+            }
+            int operations = 0;
+            for (Future<Integer> result : results) {
+                operations += result.get();
+            }
+            return operations;
+        } finally {
+            clients.shutdown();
+        }
+    }
+}